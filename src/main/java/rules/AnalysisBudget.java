@@ -0,0 +1,121 @@
+package rules;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.properties.PropertyFactory;
+import net.sourceforge.pmd.reporting.RuleContext;
+
+/**
+ * Per-rule, per-file watchdog for the custom rules.
+ *
+ * Rules obtain their budget in {@code apply} through {@link #forFile}, which
+ * keeps the current budget while {@code apply} is called again for other target
+ * nodes (e.g. inner classes) of the same file, and call {@link #tick()} in their
+ * traversal loops. Once the wall-time or visited-node limit is hit, tick()
+ * keeps returning false so the rule can bail out cooperatively; the rule then
+ * calls {@link #reportTruncation} which emits a single "analysis truncated"
+ * finding and records the file in the {@link AnalysisTimingReport}.
+ *
+ * Limits are regular rule properties, e.g. in apex-ruleset.xml:
+ * <pre>
+ *   &lt;property name="analysisMaxMillis" value="2000"/&gt;
+ *   &lt;property name="analysisMaxNodes" value="100000"/&gt;
+ * </pre>
+ * A value of 0 disables that limit.
+ */
+public final class AnalysisBudget {
+
+    public static final PropertyDescriptor<Integer> MAX_MILLIS =
+            PropertyFactory.intProperty("analysisMaxMillis")
+                    .desc("Wall-time budget per file for this rule in milliseconds (0 = unlimited)")
+                    .defaultValue(5000)
+                    .build();
+
+    public static final PropertyDescriptor<Integer> MAX_NODES =
+            PropertyFactory.intProperty("analysisMaxNodes")
+                    .desc("Maximum number of AST nodes this rule may visit per file (0 = unlimited)")
+                    .defaultValue(200000)
+                    .build();
+
+    // System.nanoTime() is cheap but not free; only look at the clock every N ticks
+    private static final int CLOCK_CHECK_INTERVAL = 256;
+
+    private final Rule rule;
+    private final TextDocument document;
+    private final String fileName;
+    private final long deadlineNanos;
+    private final long startNanos;
+    private final int maxNodes;
+
+    private int visited;
+    private String exhaustedReason;
+    private boolean reported;
+
+    private AnalysisBudget(Rule rule, TextDocument document, int maxMillis, int maxNodes) {
+        this.rule = rule;
+        this.document = document;
+        this.fileName = document.getFileId().getOriginalPath();
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = maxMillis > 0 ? startNanos + TimeUnit.MILLISECONDS.toNanos(maxMillis) : 0L;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Returns {@code current} if it belongs to the file containing {@code target},
+     * otherwise starts a fresh budget for that file using the rule's
+     * {@link #MAX_MILLIS} and {@link #MAX_NODES} properties.
+     */
+    public static AnalysisBudget forFile(AnalysisBudget current, Rule rule, Node target) {
+        TextDocument document = target.getTextDocument();
+        if (current != null && current.document == document) {
+            return current;
+        }
+        return new AnalysisBudget(rule, document,
+                rule.getProperty(MAX_MILLIS),
+                rule.getProperty(MAX_NODES));
+    }
+
+    /**
+     * Accounts for one visited node.
+     *
+     * @return false once the budget is exhausted; callers should stop traversing
+     */
+    public boolean tick() {
+        if (exhaustedReason != null) {
+            return false;
+        }
+        visited++;
+        if (maxNodes > 0 && visited > maxNodes) {
+            exhaustedReason = "visited-node limit of " + maxNodes;
+        } else if (deadlineNanos != 0L && visited % CLOCK_CHECK_INTERVAL == 0
+                && System.nanoTime() - deadlineNanos > 0) {
+            exhaustedReason = "time limit of " + TimeUnit.NANOSECONDS.toMillis(deadlineNanos - startNanos) + " ms";
+        }
+        return exhaustedReason == null;
+    }
+
+    public boolean isExhausted() {
+        return exhaustedReason != null;
+    }
+
+    /**
+     * Emits the "analysis truncated" finding at {@code location} and records the
+     * file in the timing report. Only the first call per budget has an effect.
+     */
+    public void reportTruncation(RuleContext ctx, Node location) {
+        if (reported || exhaustedReason == null) {
+            return;
+        }
+        reported = true;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        ctx.addViolationWithMessage(location,
+                "Analysis truncated: " + rule.getName() + " hit its " + exhaustedReason
+                        + " on this file after " + visited + " nodes / " + elapsedMillis
+                        + " ms. Findings for this rule are incomplete.");
+        AnalysisTimingReport.recordTruncation(rule.getName(), fileName, exhaustedReason, visited, elapsedMillis);
+    }
+}
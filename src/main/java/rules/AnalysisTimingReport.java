@@ -0,0 +1,42 @@
+package rules;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tab-separated timing report of files on which a custom rule ran out of its
+ * {@link AnalysisBudget}. Written only when the {@code rules.timingReport}
+ * system property names a file, e.g.
+ * {@code PMD_JAVA_OPTS=-Drules.timingReport=pmd-timing-report.txt}.
+ *
+ * Columns: rule, file, reason, visited nodes, elapsed ms.
+ */
+public final class AnalysisTimingReport {
+
+    public static final String REPORT_PROPERTY = "rules.timingReport";
+
+    private AnalysisTimingReport() {
+    }
+
+    public static synchronized void recordTruncation(String rule, String file, String reason,
+                                                     int visitedNodes, long elapsedMillis) {
+        String target = System.getProperty(REPORT_PROPERTY);
+        if (target == null || target.isEmpty()) {
+            return;
+        }
+        Path path = Paths.get(target);
+        String line = rule + "\t" + file + "\t" + reason + "\t" + visitedNodes + "\t" + elapsedMillis
+                + System.lineSeparator();
+        try {
+            Files.write(path, line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // the truncation finding itself is already in the PMD report; don't fail the scan over this
+            System.err.println("Could not write timing report " + path + ": " + e.getMessage());
+        }
+    }
+}
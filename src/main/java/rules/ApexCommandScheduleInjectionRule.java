@@ -14,11 +14,14 @@ import net.sourceforge.pmd.lang.apex.ast.ASTVariableExpression;
 import net.sourceforge.pmd.lang.apex.ast.ApexNode;
 import net.sourceforge.pmd.lang.apex.rule.AbstractApexRule;
 import net.sourceforge.pmd.lang.apex.rule.internal.Helper;
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.rule.RulePriority;
+import net.sourceforge.pmd.reporting.RuleContext;
 
 /**
  * Detects System.schedule(System.enqueueJob, etc.) where cron or job name
  * is constructed from untrusted/untainted variables (simple taint-tracking).
+ * Each call re-walks its descendants, so traversal is bounded by an {@link AnalysisBudget}.
  *
  * Priority: HIGH
  */
@@ -36,31 +39,62 @@ public class ApexCommandScheduleInjectionRule extends AbstractApexRule {
     // Variables considered safe because they were assigned a literal or sanitized
     private final Set<String> safeVariables = new HashSet<>();
 
+    private AnalysisBudget budget;
+
     public ApexCommandScheduleInjectionRule() {
         setPriority(RulePriority.HIGH);
         setName("ApexCommandScheduleInjectionRule");
         setMessage("Possible schedule/command injection: cron/job name built from untrusted input.");
+        definePropertyDescriptor(AnalysisBudget.MAX_MILLIS);
+        definePropertyDescriptor(AnalysisBudget.MAX_NODES);
+    }
+
+    @Override
+    public void apply(Node target, RuleContext ctx) {
+        budget = AnalysisBudget.forFile(budget, this, target);
+        super.apply(target, ctx);
+    }
+
+    /**
+     * Ticks the budget for {@code node}; once exhausted, reports the truncation
+     * and returns false so the caller stops descending.
+     */
+    private boolean withinBudget(ApexNode<?> node, Object data) {
+        if (budget.tick()) {
+            return true;
+        }
+        budget.reportTruncation(asCtx(data), node);
+        return false;
     }
 
     @Override
     public Object visit(ASTVariableDeclaration node, Object data) {
-        markSafeIfLiteralOrEscaped(node);
+        if (!withinBudget(node, data)) {
+            return data;
+        }
+        markSafeIfLiteralOrEscaped(node, data);
         return super.visit(node, data);
     }
 
     @Override
     public Object visit(ASTAssignmentExpression node, Object data) {
-        markSafeIfLiteralOrEscaped(node);
+        if (!withinBudget(node, data)) {
+            return data;
+        }
+        markSafeIfLiteralOrEscaped(node, data);
         return super.visit(node, data);
     }
 
     @Override
     public Object visit(ASTFieldDeclaration node, Object data) {
-        markSafeIfLiteralOrEscaped(node);
+        if (!withinBudget(node, data)) {
+            return data;
+        }
+        markSafeIfLiteralOrEscaped(node, data);
         return super.visit(node, data);
     }
 
-    private void markSafeIfLiteralOrEscaped(ApexNode<?> node) {
+    private void markSafeIfLiteralOrEscaped(ApexNode<?> node, Object data) {
         // Find variable expression inside (if any)
         ASTVariableExpression var = node.firstChild(ASTVariableExpression.class);
         if (var == null) {
@@ -74,7 +108,10 @@ public class ApexCommandScheduleInjectionRule extends AbstractApexRule {
         }
 
         // If RHS contains a method call to a known sanitizer (String.escapeSingleQuotes or String.join) => safe
-        for (ASTMethodCallExpression mc : node.descendants(ASTMethodCallExpression.class).toList()) {
+        for (ASTMethodCallExpression mc : node.descendants(ASTMethodCallExpression.class)) {
+            if (!withinBudget(mc, data)) {
+                return;
+            }
             if (Helper.isMethodName(mc, STRING_CLASS, ESCAPE_SINGLE_QUOTES)
                     || Helper.isMethodName(mc, STRING_CLASS, STRING_JOIN)) {
                 safeVariables.add(Helper.getFQVariableName(var));
@@ -94,6 +131,9 @@ public class ApexCommandScheduleInjectionRule extends AbstractApexRule {
 
     @Override
     public Object visit(ASTMethodCallExpression node, Object data) {
+        if (!withinBudget(node, data)) {
+            return data;
+        }
         // Detect System.schedule(...)
         if (Helper.isMethodName(node, SCHEDULER_CLASS, SCHEDULER_METHOD)) {
             // System.schedule(jobName, cronExpression, schedulable)
@@ -111,7 +151,10 @@ public class ApexCommandScheduleInjectionRule extends AbstractApexRule {
                     }
                 } else {
                     // other expression (concatenation or methodcall). Try to find underlying variable(s)
-                    for (ASTVariableExpression v : node.descendants(ASTVariableExpression.class).toList()) {
+                    for (ASTVariableExpression v : node.descendants(ASTVariableExpression.class)) {
+                        if (!withinBudget(v, data)) {
+                            return data;
+                        }
                         String fq = Helper.getFQVariableName(v);
                         if (!safeVariables.contains(fq)) {
                             asCtx(data).addViolation(v);
@@ -127,7 +170,10 @@ public class ApexCommandScheduleInjectionRule extends AbstractApexRule {
                 || Helper.isMethodName(node, "Database", EXECUTE_BATCH)
                 || node.getFullMethodName() != null && node.getFullMethodName().endsWith(".enqueueJob")) {
             // Enqueue usually takes a job object; we look for variable constructors with tainted args
-            for (ASTVariableExpression v : node.descendants(ASTVariableExpression.class).toList()) {
+            for (ASTVariableExpression v : node.descendants(ASTVariableExpression.class)) {
+                if (!withinBudget(v, data)) {
+                    return data;
+                }
                 String fq = Helper.getFQVariableName(v);
                 if (!safeVariables.contains(fq)) {
                     asCtx(data).addViolation(v);
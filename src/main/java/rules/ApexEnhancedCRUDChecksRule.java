@@ -3,12 +3,15 @@
  */
 package rules;
 
+import net.sourceforge.pmd.lang.apex.ast.ASTMethod;
 import net.sourceforge.pmd.lang.apex.ast.ASTMethodCallExpression;
 import net.sourceforge.pmd.lang.apex.ast.ASTSoqlExpression;
 import net.sourceforge.pmd.lang.apex.ast.ASTUserClass;
 import net.sourceforge.pmd.lang.apex.rule.AbstractApexRule;
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.rule.RuleTargetSelector;
 import net.sourceforge.pmd.lang.apex.rule.internal.Helper;
+import net.sourceforge.pmd.reporting.RuleContext;
 import java.util.Locale;
 
 /**
@@ -17,9 +20,23 @@ import java.util.Locale;
  * - encourages use of WITH SECURITY_ENFORCED on SOQL
  * - encourages checks like Schema.sObjectType.MyObject.isAccessible or explicit authorization calls before DML
  * This rule is intentionally gentle: it flags SOQL without WITH SECURITY_ENFORCED and DMLs without preceding obvious checks.
+ * The per-DML method rescan is quadratic, so traversal is bounded by an {@link AnalysisBudget}.
  */
 public class ApexEnhancedCRUDChecksRule extends AbstractApexRule {
 
+    private AnalysisBudget budget;
+
+    public ApexEnhancedCRUDChecksRule() {
+        definePropertyDescriptor(AnalysisBudget.MAX_MILLIS);
+        definePropertyDescriptor(AnalysisBudget.MAX_NODES);
+    }
+
+    @Override
+    public void apply(Node target, RuleContext ctx) {
+        budget = AnalysisBudget.forFile(budget, this, target);
+        super.apply(target, ctx);
+    }
+
     @Override
     protected RuleTargetSelector buildTargetSelector() {
         return RuleTargetSelector.forTypes(ASTUserClass.class);
@@ -33,6 +50,10 @@ public class ApexEnhancedCRUDChecksRule extends AbstractApexRule {
 
         // SOQL lacking WITH SECURITY_ENFORCED
         for (ASTSoqlExpression soql : node.descendants(ASTSoqlExpression.class)) {
+            if (!budget.tick()) {
+                budget.reportTruncation(asCtx(data), node);
+                return data;
+            }
             String q = soql.getQuery() == null ? "" : soql.getQuery();
             if (!q.toUpperCase(Locale.ROOT).contains("WITH SECURITY_ENFORCED")) {
                 asCtx(data).addViolation(soql);
@@ -41,12 +62,24 @@ public class ApexEnhancedCRUDChecksRule extends AbstractApexRule {
 
         // DML without trivial preceding checks - heuristic
         for (ASTMethodCallExpression dml : node.descendants(ASTMethodCallExpression.class)) {
+            if (!budget.tick()) {
+                budget.reportTruncation(asCtx(data), node);
+                return data;
+            }
             // if there is no Schema.sObjectType.<X>.isCreateable/isUpdateable call earlier in method - warn
-            ASTMethodCallExpression prev = dml.ancestors(net.sourceforge.pmd.lang.apex.ast.ASTMethod.class).first()
-                    .descendants(ASTMethodCallExpression.class)
-                    .filter(mc -> mc.getImage() != null && mc.getImage().toLowerCase(Locale.ROOT).contains("iscreateable"))
-                    .first();
-            if (prev == null) {
+            boolean checked = false;
+            for (ASTMethodCallExpression mc : dml.ancestors(ASTMethod.class).first()
+                    .descendants(ASTMethodCallExpression.class)) {
+                if (!budget.tick()) {
+                    budget.reportTruncation(asCtx(data), node);
+                    return data;
+                }
+                if (mc.getImage() != null && mc.getImage().toLowerCase(Locale.ROOT).contains("iscreateable")) {
+                    checked = true;
+                    break;
+                }
+            }
+            if (!checked) {
                 asCtx(data).addViolation(dml);
             }
         }
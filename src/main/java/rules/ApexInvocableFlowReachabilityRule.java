@@ -0,0 +1,132 @@
+package rules;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.sourceforge.pmd.lang.apex.ast.ASTAnnotation;
+import net.sourceforge.pmd.lang.apex.ast.ASTDmlDeleteStatement;
+import net.sourceforge.pmd.lang.apex.ast.ASTDmlInsertStatement;
+import net.sourceforge.pmd.lang.apex.ast.ASTDmlUpdateStatement;
+import net.sourceforge.pmd.lang.apex.ast.ASTDmlUpsertStatement;
+import net.sourceforge.pmd.lang.apex.ast.ASTMethod;
+import net.sourceforge.pmd.lang.apex.ast.ASTMethodCallExpression;
+import net.sourceforge.pmd.lang.apex.ast.ASTModifierNode;
+import net.sourceforge.pmd.lang.apex.ast.ASTSoqlExpression;
+import net.sourceforge.pmd.lang.apex.ast.ASTUserClass;
+import net.sourceforge.pmd.lang.apex.rule.AbstractApexRule;
+import net.sourceforge.pmd.lang.apex.rule.internal.Helper;
+import net.sourceforge.pmd.lang.rule.RulePriority;
+import net.sourceforge.pmd.lang.rule.RuleTargetSelector;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.properties.PropertyFactory;
+
+import rules.FlowApexCrossReferenceIndex.FlowActionRef;
+import rules.FlowApexCrossReferenceIndex.InvocableMethodRef;
+
+/**
+ * Combined Flow/Apex scan (see cross-reference-ruleset.xml).
+ *
+ * For every {@code @InvocableMethod}, collects its class sharing mode and the
+ * data-access sinks it reaches, and reports on the method when a guest-started or
+ * system-context Flow in {@code flowDirs} calls its class. The Flows are indexed
+ * by {@link FlowApexCrossReferenceIndex} before the first report, so the finding
+ * always lands on the Apex method regardless of file order.
+ *
+ * Priority: HIGH
+ */
+public class ApexInvocableFlowReachabilityRule extends AbstractApexRule {
+
+    private static final String INVOCABLE_METHOD = "InvocableMethod";
+
+    private static final PropertyDescriptor<List<String>> FLOW_DIRS =
+            PropertyFactory.stringListProperty("flowDirs")
+                    .desc("Directories with *.flow / *.flow-meta.xml files to link against invocable methods")
+                    .defaultValues("flows", "force-app/main/default/flows")
+                    .build();
+
+    public ApexInvocableFlowReachabilityRule() {
+        setName("ApexInvocableFlowReachabilityRule");
+        setPriority(RulePriority.HIGH);
+        definePropertyDescriptor(FLOW_DIRS);
+    }
+
+    @Override
+    protected RuleTargetSelector buildTargetSelector() {
+        return RuleTargetSelector.forTypes(ASTUserClass.class);
+    }
+
+    @Override
+    public Object visit(ASTUserClass node, Object data) {
+        if (Helper.isTestMethodOrClass(node)) {
+            return data;
+        }
+
+        String sharingMode = sharingModeOf(node);
+        FlowApexCrossReferenceIndex index = FlowApexCrossReferenceIndex.getInstance();
+        index.indexFlows(getProperty(FLOW_DIRS));
+
+        for (ASTMethod method : node.descendants(ASTMethod.class)) {
+            if (!isInvocable(method)) {
+                continue;
+            }
+            InvocableMethodRef ref = new InvocableMethodRef(
+                    node.getSimpleName(), method.getImage(), sharingMode, findSinks(method));
+
+            for (FlowActionRef action : index.flowActionsFor(ref.getApexClass())) {
+                String risk = FlowApexCrossReferenceIndex.describeRisk(action, ref);
+                if (risk != null) {
+                    asCtx(data).addViolationWithMessage(method, risk);
+                }
+            }
+        }
+        return data;
+    }
+
+    private boolean isInvocable(ASTMethod method) {
+        for (ASTAnnotation ann : method.descendants(ASTAnnotation.class)) {
+            if (INVOCABLE_METHOD.equalsIgnoreCase(ann.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String sharingModeOf(ASTUserClass node) {
+        ASTModifierNode modifiers = node.firstChild(ASTModifierNode.class);
+        if (modifiers == null) {
+            return "without a sharing declaration";
+        }
+        if (modifiers.isWithSharing()) {
+            return "with sharing";
+        }
+        if (modifiers.isWithoutSharing()) {
+            return "without sharing";
+        }
+        if (modifiers.isInheritedSharing()) {
+            return "with inherited sharing";
+        }
+        return "without a sharing declaration";
+    }
+
+    private List<String> findSinks(ASTMethod method) {
+        Set<String> sinks = new LinkedHashSet<>();
+        for (ASTMethodCallExpression call : method.descendants(ASTMethodCallExpression.class)) {
+            if (Helper.isMethodName(call, "Database", "query")
+                    || Helper.isMethodName(call, "Database", "countQuery")) {
+                sinks.add("Database." + call.getMethodName());
+            }
+        }
+        if (method.descendants(ASTSoqlExpression.class).nonEmpty()) {
+            sinks.add("SOQL");
+        }
+        if (method.descendants(ASTDmlInsertStatement.class).nonEmpty()
+                || method.descendants(ASTDmlUpdateStatement.class).nonEmpty()
+                || method.descendants(ASTDmlUpsertStatement.class).nonEmpty()
+                || method.descendants(ASTDmlDeleteStatement.class).nonEmpty()) {
+            sinks.add("DML");
+        }
+        return new ArrayList<>(sinks);
+    }
+}
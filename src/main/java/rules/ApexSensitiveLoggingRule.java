@@ -4,26 +4,50 @@
 
 package rules;
 
+import net.sourceforge.pmd.lang.apex.ast.ASTField;
 import net.sourceforge.pmd.lang.apex.ast.ASTMethodCallExpression;
+import net.sourceforge.pmd.lang.apex.ast.ASTParameter;
+import net.sourceforge.pmd.lang.apex.ast.ASTReferenceExpression;
 import net.sourceforge.pmd.lang.apex.ast.ASTUserClass;
+import net.sourceforge.pmd.lang.apex.ast.ASTVariableDeclaration;
 import net.sourceforge.pmd.lang.apex.ast.ASTVariableExpression;
 import net.sourceforge.pmd.lang.apex.rule.AbstractApexRule;
 import net.sourceforge.pmd.lang.apex.rule.internal.Helper;
 import net.sourceforge.pmd.lang.rule.RulePriority;
 import net.sourceforge.pmd.lang.rule.RuleTargetSelector;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.properties.PropertyFactory;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Detects logging of sensitive data (e.g., DML objects, passwords, secrets)
  * via System.debug or custom logging calls.
+ *
+ * Field references such as {@code acc.SSN__c} are resolved against a
+ * {@link SensitiveFieldIndex} built from the object metadata in
+ * {@code objectMetadataDirs}: when the receiver's declared type (or the receiver
+ * itself, e.g. {@code Account.SSN__c}) is an object described by the metadata,
+ * the index alone decides, so {@code acc.Token_Count__c} is not flagged unless
+ * its metadata classifies it. Plain variables, receivers of unknown or
+ * non-SObject type (e.g. an Apex class field {@code creds.password}), and all
+ * arguments when no object metadata is present use the variable-name heuristic.
  */
 public class ApexSensitiveLoggingRule extends AbstractApexRule {
 
+    private static final PropertyDescriptor<List<String>> OBJECT_METADATA_DIRS =
+            PropertyFactory.stringListProperty("objectMetadataDirs")
+                    .desc("Directories with *.object-meta.xml / *.field-meta.xml metadata used to classify fields")
+                    .defaultValues("objects", "force-app/main/default/objects")
+                    .build();
+
     public ApexSensitiveLoggingRule() {
         setName("ApexSensitiveLoggingRule");
         setPriority(RulePriority.HIGH); // High priority for security
+        definePropertyDescriptor(OBJECT_METADATA_DIRS);
     }
 
     @Override
@@ -33,17 +57,45 @@ public class ApexSensitiveLoggingRule extends AbstractApexRule {
 
     @Override
     public Object visit(ASTUserClass node, Object data) {
+        SensitiveFieldIndex index = SensitiveFieldIndex.forDirectories(getProperty(OBJECT_METADATA_DIRS));
+        Map<String, String> declaredTypes = index.isEmpty() ? null : collectDeclaredTypes(node);
 
         // Use descendants() and filter manually
         List<ASTMethodCallExpression> methodCalls = node.descendants(ASTMethodCallExpression.class).toList();
         for (ASTMethodCallExpression call : methodCalls) {
-            processMethodCall(call, data);
+            processMethodCall(call, data, index, declaredTypes);
         }
 
         return data;
     }
 
-    private void processMethodCall(ASTMethodCallExpression call, Object data) {
+    /**
+     * Lowercased variable name -> declared type for fields, parameters and locals of the class.
+     * Names are not scoped per method; the first declaration wins.
+     */
+    private Map<String, String> collectDeclaredTypes(ASTUserClass node) {
+        Map<String, String> types = new HashMap<>();
+        for (ASTField field : node.descendants(ASTField.class)) {
+            putType(types, field.getName(), field.getType());
+        }
+        for (ASTParameter param : node.descendants(ASTParameter.class)) {
+            putType(types, param.getImage(), param.getType());
+        }
+        for (ASTVariableDeclaration decl : node.descendants(ASTVariableDeclaration.class)) {
+            putType(types, decl.getImage(), decl.getType());
+        }
+        return types;
+    }
+
+    private void putType(Map<String, String> types, String name, String type) {
+        if (name != null && type != null) {
+            String simple = type.regionMatches(true, 0, "Schema.", 0, 7) ? type.substring(7) : type;
+            types.putIfAbsent(name.toLowerCase(Locale.ROOT), simple);
+        }
+    }
+
+    private void processMethodCall(ASTMethodCallExpression call, Object data,
+                                   SensitiveFieldIndex index, Map<String, String> declaredTypes) {
         String fullMethodName = call.getFullMethodName();
 
         if ("System.debug".equals(fullMethodName) || fullMethodName.endsWith(".log")) {
@@ -52,13 +104,38 @@ public class ApexSensitiveLoggingRule extends AbstractApexRule {
             List<ASTVariableExpression> args = call.descendants(ASTVariableExpression.class).toList();
             for (ASTVariableExpression arg : args) {
                 String varName = arg.getImage();
-                if (isSensitiveVariable(varName)) {
+                ASTReferenceExpression ref = arg.firstChild(ASTReferenceExpression.class);
+                boolean fieldRef = ref != null && !ref.getNames().isEmpty()
+                        && !"this".equalsIgnoreCase(ref.getNames().get(0));
+                boolean sensitive = fieldRef && declaredTypes != null
+                        ? isSensitiveField(ref.getNames(), varName, index, declaredTypes)
+                        : isSensitiveVariable(varName);
+                if (sensitive) {
                     asCtx(data).addViolation(arg);
                 }
             }
         }
     }
 
+    /**
+     * Resolves {@code receiver.field} to "Object.Field": the receiver's declared type if
+     * known, otherwise the receiver itself (Account.SSN__c, relationship Owner__r.SSN__c).
+     * If the metadata describes that object, the index decides. Otherwise the name
+     * heuristic applies, and undeclared receivers also match on the field name alone.
+     */
+    private boolean isSensitiveField(List<String> qualifier, String field,
+                                     SensitiveFieldIndex index, Map<String, String> declaredTypes) {
+        String receiver = qualifier.get(qualifier.size() - 1);
+        String type = declaredTypes.get(receiver.toLowerCase(Locale.ROOT));
+        String object = type != null
+                ? type
+                : receiver.endsWith("__r") ? receiver.substring(0, receiver.length() - 3) + "__c" : receiver;
+        if (index.containsObject(object)) {
+            return index.contains(object, field);
+        }
+        return isSensitiveVariable(field) || type == null && index.containsField(field);
+    }
+
     private boolean isSensitiveVariable(String varName) {
         String lower = varName.toLowerCase();
         return lower.contains("password") || lower.contains("secret") || lower.contains("token") ||
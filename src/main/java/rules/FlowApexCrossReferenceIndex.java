@@ -0,0 +1,304 @@
+package rules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Flow side of the combined Flow/Apex scan: records which Flows call which Apex
+ * class (actionName -> Apex class) and the context each Flow starts in.
+ *
+ * PMD processes files on several threads in no particular order and has no
+ * end-of-run hook for rules, so Flow facts can't be collected from the Flow
+ * files as PMD happens to visit them. Instead the Flow directories are
+ * pre-scanned with StAX, once per JVM, the first time
+ * {@link ApexInvocableFlowReachabilityRule} needs them. Every finding is then
+ * reported on the Apex method, independent of file order and thread count.
+ *
+ * The Flow files of a directory are parsed in parallel into per-file results,
+ * which are merged in sorted path order so the output doesn't depend on
+ * scheduling. The first caller for a directory does the scan; concurrent
+ * callers wait for it. The lock is only held to publish the merged map.
+ */
+public final class FlowApexCrossReferenceIndex {
+
+    private static final FlowApexCrossReferenceIndex INSTANCE = new FlowApexCrossReferenceIndex();
+
+    private static final String[] FLOW_SUFFIXES = { ".flow-meta.xml", ".flow" };
+
+    // XMLInputFactory is not guaranteed to be thread-safe, so each parsing thread gets its own
+    private static final ThreadLocal<XMLInputFactory> FACTORY =
+            ThreadLocal.withInitial(FlowApexCrossReferenceIndex::newFactory);
+
+    // One scan per directory; completed only after its results are published
+    private final ConcurrentMap<String, CompletableFuture<Void>> scans = new ConcurrentHashMap<>();
+    // Per-directory results, keyed by absolute path; guarded by this
+    private final Map<String, List<FlowActionRef>> actionsByDir = new TreeMap<>();
+    // Immutable snapshot rebuilt from actionsByDir on every publish
+    private volatile Map<String, List<FlowActionRef>> actionsByClass = Collections.emptyMap();
+
+    private FlowApexCrossReferenceIndex() {
+    }
+
+    public static FlowApexCrossReferenceIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Indexes all Flows below the given directories that were not indexed yet.
+     * Directories that don't exist are ignored.
+     */
+    public void indexFlows(List<String> dirs) {
+        for (String dir : dirs) {
+            Path root = Paths.get(dir).toAbsolutePath().normalize();
+            CompletableFuture<Void> scan = new CompletableFuture<>();
+            CompletableFuture<Void> running = scans.putIfAbsent(root.toString(), scan);
+            if (running != null) {
+                running.join();
+                continue;
+            }
+            try {
+                if (Files.isDirectory(root)) {
+                    publish(root.toString(), scanDirectory(root));
+                }
+            } finally {
+                scan.complete(null);
+            }
+        }
+    }
+
+    /** Flow action calls to the given Apex class, in Flow file order, then document order. */
+    public List<FlowActionRef> flowActionsFor(String apexClass) {
+        List<FlowActionRef> actions = actionsByClass.get(apexClass.toLowerCase(Locale.ROOT));
+        return actions == null ? Collections.emptyList() : actions;
+    }
+
+    /** Drops all indexed facts, e.g. between two scans in the same JVM. */
+    public synchronized void clear() {
+        scans.clear();
+        actionsByDir.clear();
+        actionsByClass = Collections.emptyMap();
+    }
+
+    private static List<FlowActionRef> scanDirectory(Path root) {
+        List<Path> flows;
+        try (Stream<Path> walk = Files.walk(root)) {
+            flows = walk.filter(Files::isRegularFile).filter(p -> flowName(p) != null).sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            System.err.println("Could not read flows in " + root + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+        // parallel map keeps encounter order, so results stay in sorted file order
+        return flows.parallelStream()
+                .map(flow -> indexFlow(FACTORY.get(), flow))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private synchronized void publish(String root, List<FlowActionRef> actions) {
+        actionsByDir.put(root, actions);
+        Map<String, List<FlowActionRef>> byClass = new LinkedHashMap<>();
+        for (List<FlowActionRef> dirActions : actionsByDir.values()) {
+            for (FlowActionRef ref : dirActions) {
+                byClass.computeIfAbsent(ref.getApexClass().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                        .add(ref);
+            }
+        }
+        byClass.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        actionsByClass = Collections.unmodifiableMap(byClass);
+    }
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /** Apex action calls in one Flow file, in document order. */
+    private static List<FlowActionRef> indexFlow(XMLInputFactory factory, Path file) {
+        String flowName = flowName(file);
+        String context = null;
+        List<Map<String, String>> actions = new ArrayList<>();
+
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                int depth = 0;
+                String current = null;          // depth-2 element being buffered
+                Map<String, String> values = new HashMap<>();
+                StringBuilder text = new StringBuilder();
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        text.setLength(0);
+                        if (depth == 2) {
+                            current = reader.getLocalName();
+                            values = new HashMap<>();
+                        }
+                    } else if (event == XMLStreamConstants.CHARACTERS && depth >= 2) {
+                        text.append(reader.getText());
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == 3) {
+                            values.put(reader.getLocalName(), text.toString().trim());
+                        } else if (depth == 2) {
+                            if ("start".equals(current) && "true".equalsIgnoreCase(values.get("isPublic"))) {
+                                context = "Guest-started";
+                            } else if ("runInMode".equals(current) && context == null
+                                    && "SystemModeWithoutSharing".equals(text.toString().trim())) {
+                                context = "System-context";
+                            } else if (isApexAction(current, values)) {
+                                actions.add(values);
+                            }
+                            current = null;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            System.err.println("Skipping flow " + file + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+
+        List<FlowActionRef> refs = new ArrayList<>();
+        for (Map<String, String> action : actions) {
+            String actionName = action.get("actionName");
+            if (actionName == null || actionName.isEmpty()) {
+                // nothing to link against; ApexActionNoFault still covers the element itself
+                continue;
+            }
+            refs.add(new FlowActionRef(flowName, action.get("name"), apexClassOf(actionName), context));
+        }
+        return refs;
+    }
+
+    private static boolean isApexAction(String element, Map<String, String> values) {
+        if ("actionCalls".equals(element)) {
+            return "apex".equalsIgnoreCase(values.get("actionType"));
+        }
+        return "elements".equals(element) && "ApexAction".equals(values.get("type"));
+    }
+
+    /** Strips an optional namespace prefix and method suffix: {@code ns__MyClass.run} -> {@code MyClass}. */
+    private static String apexClassOf(String actionName) {
+        String cls = actionName;
+        int dot = cls.indexOf('.');
+        if (dot > 0) {
+            cls = cls.substring(0, dot);
+        }
+        int ns = cls.indexOf("__");
+        if (ns > 0 && !cls.endsWith("__c")) {
+            cls = cls.substring(ns + 2);
+        }
+        return cls;
+    }
+
+    /** Flow API name from its file name, or null if the file is not a Flow. */
+    private static String flowName(Path file) {
+        String name = file.getFileName().toString();
+        for (String suffix : FLOW_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the combined finding for a Flow action reaching an Apex invocable,
+     * or returns null if the pair is not considered risky.
+     */
+    public static String describeRisk(FlowActionRef action, InvocableMethodRef method) {
+        if (!action.isExposed() || method.isWithSharing() || method.getSinks().isEmpty()) {
+            return null;
+        }
+        return action.getContext() + " flow \"" + action.getFlowName() + "\" (action \"" + action.getActionName()
+                + "\") reaches Apex method " + method.getApexClass() + "." + method.getMethodName()
+                + " doing " + String.join(", ", method.getSinks()) + " " + method.getSharingMode()
+                + ". [OWASP A01]";
+    }
+
+    /**
+     * An Apex action call found in a Flow.
+     */
+    public static final class FlowActionRef {
+        private final String flowName;
+        private final String actionName;
+        private final String apexClass;
+        private final String context;
+
+        /**
+         * @param context "Guest-started", "System-context" or null if the Flow runs as the calling user
+         */
+        public FlowActionRef(String flowName, String actionName, String apexClass, String context) {
+            this.flowName = flowName;
+            this.actionName = actionName;
+            this.apexClass = apexClass;
+            this.context = context;
+        }
+
+        public String getFlowName() { return flowName; }
+        public String getActionName() { return actionName; }
+        public String getApexClass() { return apexClass; }
+        public String getContext() { return context; }
+        public boolean isExposed() { return context != null; }
+    }
+
+    /**
+     * An Apex {@code @InvocableMethod} and the facts needed to judge a Flow reaching it.
+     */
+    public static final class InvocableMethodRef {
+        private final String apexClass;
+        private final String methodName;
+        private final String sharingMode;
+        private final List<String> sinks;
+
+        public InvocableMethodRef(String apexClass, String methodName, String sharingMode, List<String> sinks) {
+            this.apexClass = apexClass;
+            this.methodName = methodName;
+            this.sharingMode = sharingMode;
+            this.sinks = Collections.unmodifiableList(new ArrayList<>(sinks));
+        }
+
+        public String getApexClass() { return apexClass; }
+        public String getMethodName() { return methodName; }
+        public String getSharingMode() { return sharingMode; }
+        public List<String> getSinks() { return sinks; }
+
+        /**
+         * True for "with sharing" and "with inherited sharing": an invocable called
+         * from a Flow is the entry point of the Apex transaction, and inherited
+         * sharing at the entry point runs as with sharing.
+         */
+        public boolean isWithSharing() {
+            return "with sharing".equals(sharingMode) || "with inherited sharing".equals(sharingMode);
+        }
+    }
+}
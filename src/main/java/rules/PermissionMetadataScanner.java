@@ -0,0 +1,269 @@
+package rules;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming rule set for Salesforce profile and permission-set metadata.
+ *
+ * Full profiles run to tens of MB, which is too much for the DOM that
+ * DomXPathRule (flow-ruleset.xml) builds, so these files are read with StAX
+ * outside of PMD. Only the current top-level permission element (a handful of
+ * leaf values) is held in memory, so memory stays constant with file size.
+ *
+ * Rules:
+ * - DangerousUserPermission: ViewAllData, ModifyAllData, AuthorApex, ... enabled
+ * - ObjectModifyAllRecords / ObjectViewAllRecords: object-level "modify all" / "view all"
+ * - ApexAccessToWeakSharingClass: classAccesses granting an Apex class that
+ *   ApexWeakAuthAndSharingRule flagged in the Apex PMD report (--apex-report)
+ *
+ * Findings use PMD's text renderer layout ({@code file:line:<TAB>Rule:<TAB>message})
+ * so they can be merged with the other reports.
+ *
+ * <pre>
+ * java -cp custom-rules.jar rules.PermissionMetadataScanner \
+ *     -d force-app/main/default --apex-report pmd-report.txt -r pmd-permissions-report.txt
+ * </pre>
+ */
+public final class PermissionMetadataScanner {
+
+    private static final String[] METADATA_SUFFIXES = {
+        ".profile-meta.xml", ".permissionset-meta.xml", ".profile", ".permissionset",
+    };
+
+    private static final Set<String> DANGEROUS_USER_PERMISSIONS = new HashSet<>();
+
+    static {
+        DANGEROUS_USER_PERMISSIONS.add("ViewAllData");                  // reads every record, ignores sharing
+        DANGEROUS_USER_PERMISSIONS.add("ModifyAllData");                // edits/deletes every record
+        DANGEROUS_USER_PERMISSIONS.add("AuthorApex");                   // can deploy code running in system mode
+        DANGEROUS_USER_PERMISSIONS.add("ManageUsers");                  // can grant itself anything
+        DANGEROUS_USER_PERMISSIONS.add("ManageProfilesPermissionsets"); // same, via profiles / permission sets
+        DANGEROUS_USER_PERMISSIONS.add("CustomizeApplication");         // can change sharing and field security
+    }
+
+    // Top-level elements whose leaf values are buffered; everything else is skipped
+    private static final String USER_PERMISSIONS = "userPermissions";
+    private static final String OBJECT_PERMISSIONS = "objectPermissions";
+    private static final String CLASS_ACCESSES = "classAccesses";
+
+    private static final String WEAK_SHARING_RULE = "Weak-Authentication-And-Sharing-Rule";
+
+    private final XMLInputFactory factory;
+    private final Set<String> weakSharingClasses = new HashSet<>();
+    private long findings;
+
+    private PermissionMetadataScanner() {
+        factory = XMLInputFactory.newInstance();
+        // metadata comes from the repo under scan: no DTDs, no external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        Path apexReport = null;
+        Path out = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-d":
+                case "--dir":
+                    dirs.add(Paths.get(value));
+                    break;
+                case "--apex-report":
+                    apexReport = Paths.get(value);
+                    break;
+                case "-r":
+                case "--report":
+                    out = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (dirs.isEmpty()) {
+            dirs.add(Paths.get("."));
+        }
+
+        PermissionMetadataScanner scanner = new PermissionMetadataScanner();
+        if (apexReport != null && Files.exists(apexReport)) {
+            scanner.loadWeakSharingClasses(apexReport);
+        }
+
+        try (Writer writer = out != null
+                ? Files.newBufferedWriter(out, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            for (Path file : collectInputs(dirs)) {
+                scanner.scan(file, writer);
+            }
+        }
+        System.err.println("Permission metadata scan: " + scanner.findings + " findings");
+    }
+
+    /**
+     * Collects the Apex classes ApexWeakAuthAndSharingRule reported in a PMD text report.
+     * Read line by line, so the report size doesn't matter either.
+     */
+    private void loadWeakSharingClasses(Path report) throws IOException {
+        try (Stream<String> lines = Files.lines(report, StandardCharsets.UTF_8)) {
+            lines.filter(line -> line.contains("\t" + WEAK_SHARING_RULE + ":"))
+                 .forEach(line -> {
+                     String file = line.substring(0, line.indexOf(':'));
+                     String name = Paths.get(file).getFileName().toString();
+                     if (name.endsWith(".cls")) {
+                         weakSharingClasses.add(name.substring(0, name.length() - 4).toLowerCase(Locale.ROOT));
+                     }
+                 });
+        }
+    }
+
+    private static List<Path> collectInputs(List<Path> dirs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (Path dir : dirs) {
+            try (Stream<Path> walk = Files.walk(dir)) {
+                walk.filter(Files::isRegularFile)
+                    .filter(PermissionMetadataScanner::isPermissionMetadata)
+                    .map(Path::normalize)
+                    .forEach(files::add);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static boolean isPermissionMetadata(Path p) {
+        String name = p.getFileName().toString();
+        for (String suffix : METADATA_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scan(Path file, Writer out) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                scan(file, reader, out);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            System.err.println("Skipping " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void scan(Path file, XMLStreamReader reader, Writer out) throws XMLStreamException, IOException {
+        int depth = 0;
+        String current = null;      // top-level permission element being buffered
+        int currentLine = 0;
+        Map<String, String> values = new HashMap<>();
+        StringBuilder text = new StringBuilder();
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    text.setLength(0);
+                    // depth 1 is <Profile>/<PermissionSet>, permissions are its children
+                    if (depth == 2) {
+                        String name = reader.getLocalName();
+                        if (USER_PERMISSIONS.equals(name) || OBJECT_PERMISSIONS.equals(name)
+                                || CLASS_ACCESSES.equals(name)) {
+                            current = name;
+                            currentLine = reader.getLocation().getLineNumber();
+                            values.clear();
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                    if (current != null && depth == 3) {
+                        text.append(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (current != null && depth == 3) {
+                        values.put(reader.getLocalName(), text.toString().trim());
+                    } else if (current != null && depth == 2) {
+                        check(file, current, currentLine, values, out);
+                        current = null;
+                    }
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void check(Path file, String element, int line, Map<String, String> values, Writer out)
+            throws IOException {
+        switch (element) {
+            case USER_PERMISSIONS:
+                String permission = values.get("name");
+                if (isTrue(values, "enabled") && DANGEROUS_USER_PERMISSIONS.contains(permission)) {
+                    report(out, file, line, "DangerousUserPermission",
+                            "User permission " + permission + " is enabled. Grant it through a narrowly assigned"
+                                    + " permission set instead. [OWASP A01]");
+                }
+                break;
+            case OBJECT_PERMISSIONS:
+                String object = values.get("object");
+                if (isTrue(values, "modifyAllRecords")) {
+                    report(out, file, line, "ObjectModifyAllRecords",
+                            "Modify All on " + object + " bypasses sharing for every record. [OWASP A01]");
+                } else if (isTrue(values, "viewAllRecords")) {
+                    report(out, file, line, "ObjectViewAllRecords",
+                            "View All on " + object + " bypasses sharing for every record. [OWASP A01]");
+                }
+                break;
+            case CLASS_ACCESSES:
+                String apexClass = values.get("apexClass");
+                if (isTrue(values, "enabled") && apexClass != null
+                        && weakSharingClasses.contains(apexClass.toLowerCase(Locale.ROOT))) {
+                    report(out, file, line, "ApexAccessToWeakSharingClass",
+                            "Access granted to Apex class " + apexClass + ", which was flagged by "
+                                    + WEAK_SHARING_RULE + ". [OWASP A01]");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static boolean isTrue(Map<String, String> values, String key) {
+        return "true".equalsIgnoreCase(values.get(key));
+    }
+
+    private void report(Writer out, Path file, int line, String rule, String message) throws IOException {
+        out.write(file + ":" + line + ":\t" + rule + ":\t" + message + System.lineSeparator());
+        findings++;
+    }
+}
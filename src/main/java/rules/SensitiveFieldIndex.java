@@ -0,0 +1,275 @@
+package rules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Set of sensitive "Object.Field" ids built from Salesforce object metadata,
+ * used by {@link ApexSensitiveLoggingRule}.
+ *
+ * A field is sensitive when its metadata has a {@code complianceGroup} (PII, GDPR,
+ * HIPAA, PCI, ...) or a {@code securityClassification} of Confidential, Restricted
+ * or MissionCritical. Both layouts are read, with StAX:
+ * - SFDX: {@code objects/Account/fields/SSN__c.field-meta.xml}
+ * - Metadata API: {@code Account.object} / {@code Account.object-meta.xml} with {@code <fields>}
+ *
+ * Ids are stored lowercased in one open-addressing table (linear probing, load
+ * factor at most 1/2). Besides "object.field" every field name is also stored on
+ * its own, for receivers whose SObject type can't be resolved, and every object
+ * that has metadata is stored as "object." so callers can tell "not sensitive"
+ * apart from "not described by the metadata". Lookups hash and compare the
+ * name parts in place, so they are O(1) and allocation free.
+ * The table is immutable once built and cached per metadata directory list, so
+ * it is loaded once per JVM and shared by all rule copies.
+ */
+public final class SensitiveFieldIndex {
+
+    private static final Map<String, SensitiveFieldIndex> CACHE = new ConcurrentHashMap<>();
+
+    private static final String FIELD_SUFFIX = ".field-meta.xml";
+    private static final String[] OBJECT_SUFFIXES = { ".object-meta.xml", ".object" };
+
+    private static final Set<String> SENSITIVE_CLASSIFICATIONS = new HashSet<>();
+
+    static {
+        SENSITIVE_CLASSIFICATIONS.add("confidential");
+        SENSITIVE_CLASSIFICATIONS.add("restricted");
+        SENSITIVE_CLASSIFICATIONS.add("missioncritical");
+    }
+
+    private final String[] table;
+    private final int mask;
+    private final int size;
+
+    private SensitiveFieldIndex(List<String> ids) {
+        int capacity = 16;
+        while (capacity < ids.size() * 2) {
+            capacity <<= 1;
+        }
+        table = new String[capacity];
+        mask = capacity - 1;
+        int n = 0;
+        for (String id : ids) {
+            int slot = hash(id, null) & mask;
+            while (table[slot] != null && !table[slot].equals(id)) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == null) {
+                table[slot] = id;
+                n++;
+            }
+        }
+        size = n;
+    }
+
+    /**
+     * Returns the index for the given metadata directories, loading it on first use.
+     * Directories that don't exist are ignored; with none present the index is empty.
+     */
+    public static SensitiveFieldIndex forDirectories(List<String> dirs) {
+        return CACHE.computeIfAbsent(String.join(",", dirs), k -> load(dirs));
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** True if {@code object.field} is classified as sensitive. */
+    public boolean contains(String object, String field) {
+        return find(object, field);
+    }
+
+    /** True if the metadata describes this object, whether or not it has sensitive fields. */
+    public boolean containsObject(String object) {
+        return find(object, "");
+    }
+
+    /** True if a field with this API name is sensitive on any object. */
+    public boolean containsField(String field) {
+        return find(field, null);
+    }
+
+    private boolean find(String first, String second) {
+        int slot = hash(first, second) & mask;
+        for (String id = table[slot]; id != null; id = table[slot]) {
+            if (matches(id, first, second)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static boolean matches(String id, String first, String second) {
+        int len = first.length();
+        if (second == null) {
+            return id.length() == len && id.regionMatches(true, 0, first, 0, len);
+        }
+        return id.length() == len + 1 + second.length()
+                && id.charAt(len) == '.'
+                && id.regionMatches(true, 0, first, 0, len)
+                && id.regionMatches(true, len + 1, second, 0, second.length());
+    }
+
+    /** Hash of {@code first + "." + second} lowercased, without building that string. */
+    private static int hash(String first, String second) {
+        int h = 0;
+        for (int i = 0; i < first.length(); i++) {
+            h = 31 * h + Character.toLowerCase(first.charAt(i));
+        }
+        if (second != null) {
+            h = 31 * h + '.';
+            for (int i = 0; i < second.length(); i++) {
+                h = 31 * h + Character.toLowerCase(second.charAt(i));
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static SensitiveFieldIndex load(List<String> dirs) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        List<String> ids = new ArrayList<>();
+        for (String dir : dirs) {
+            Path root = Paths.get(dir);
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(Files::isRegularFile).sorted().forEach(p -> loadFile(factory, p, ids));
+            } catch (IOException e) {
+                System.err.println("Could not read object metadata in " + root + ": " + e.getMessage());
+            }
+        }
+        return new SensitiveFieldIndex(ids);
+    }
+
+    private static void loadFile(XMLInputFactory factory, Path file, List<String> ids) {
+        String name = file.getFileName().toString();
+        boolean fieldFile = name.endsWith(FIELD_SUFFIX);
+        String objectName = null;
+        if (fieldFile) {
+            // objects/<Object>/fields/<Field>.field-meta.xml
+            Path objectDir = file.getParent() == null ? null : file.getParent().getParent();
+            if (objectDir == null || objectDir.getFileName() == null) {
+                return;
+            }
+            objectName = objectDir.getFileName().toString();
+        } else {
+            for (String suffix : OBJECT_SUFFIXES) {
+                if (name.endsWith(suffix)) {
+                    objectName = name.substring(0, name.length() - suffix.length());
+                    break;
+                }
+            }
+            if (objectName == null) {
+                return;
+            }
+        }
+
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                ids.add(objectName.toLowerCase(Locale.ROOT) + ".");
+                if (fieldFile) {
+                    // the field element is the document root
+                    String field = name.substring(0, name.length() - FIELD_SUFFIX.length());
+                    if (readFieldIsSensitive(reader, 1, null)) {
+                        add(ids, objectName, field);
+                    }
+                } else {
+                    loadObjectFields(reader, objectName, ids);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            System.err.println("Skipping object metadata " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void loadObjectFields(XMLStreamReader reader, String objectName, List<String> ids)
+            throws XMLStreamException {
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == 2 && "fields".equals(reader.getLocalName())) {
+                    String[] fullName = new String[1];
+                    if (readFieldIsSensitive(reader, 2, fullName) && fullName[0] != null) {
+                        add(ids, objectName, fullName[0]);
+                    }
+                    depth--; // reader is positioned on </fields>
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Reads the children of the field element the reader is positioned in (at
+     * {@code fieldDepth}), up to its end tag. Stores {@code fullName} into
+     * {@code fullNameOut[0]} when requested.
+     */
+    private static boolean readFieldIsSensitive(XMLStreamReader reader, int fieldDepth, String[] fullNameOut)
+            throws XMLStreamException {
+        int depth = reader.getEventType() == XMLStreamConstants.START_ELEMENT ? fieldDepth : fieldDepth - 1;
+        boolean sensitive = false;
+        String child = null;
+        StringBuilder text = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == fieldDepth + 1) {
+                    child = reader.getLocalName();
+                    text.setLength(0);
+                }
+            } else if (event == XMLStreamConstants.CHARACTERS && depth == fieldDepth + 1) {
+                text.append(reader.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == fieldDepth + 1) {
+                    String value = text.toString().trim();
+                    if ("complianceGroup".equals(child) && !value.isEmpty()) {
+                        sensitive = true;
+                    } else if ("securityClassification".equals(child)
+                            && SENSITIVE_CLASSIFICATIONS.contains(value.toLowerCase(Locale.ROOT))) {
+                        sensitive = true;
+                    } else if ("fullName".equals(child) && fullNameOut != null) {
+                        fullNameOut[0] = value;
+                    }
+                } else if (depth == fieldDepth) {
+                    return sensitive;
+                }
+                depth--;
+            }
+        }
+        return sensitive;
+    }
+
+    private static void add(List<String> ids, String object, String field) {
+        ids.add((object + "." + field).toLowerCase(Locale.ROOT));
+        ids.add(field.toLowerCase(Locale.ROOT));
+    }
+}
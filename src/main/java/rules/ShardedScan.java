@@ -0,0 +1,415 @@
+package rules;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic sharded scan driver: splits the .cls/.flow inputs into N shards,
+ * runs one PMD worker process per shard and merges the per-shard text reports
+ * into one sorted, deduplicated report.
+ *
+ * <pre>
+ * java -cp custom-rules.jar rules.ShardedScan \
+ *     --shards 4 --pmd $HOME/pmd_bin/bin/pmd --out build/shards --report pmd-report.txt \
+ *     --apex-ruleset apex-ruleset.xml --flow-ruleset flow-ruleset.xml \
+ *     --key-salt "pmd-7.17.0-$(cat src/main/java/rules/*.java | sha256sum)" \
+ *     -d apex-classes -d flows
+ * </pre>
+ *
+ * Partitioning is longest-processing-time bin packing on file size (largest file
+ * first into the currently lightest shard, ties broken by path and shard index),
+ * so the same inputs always produce the same shards. Each shard gets a content
+ * key (SHA-256 over the key salt, rulesets, paths and file contents); a shard
+ * whose key and sorted report are already present in the output directory is
+ * not re-run, so shard results can be cached independently, e.g. with actions/cache.
+ * The rule code and PMD version are not visible from here, so callers must pass
+ * them in {@code --key-salt}; otherwise a cached shard survives a rule change.
+ *
+ * Within a shard, .cls files run with the Apex ruleset and .flow files with the
+ * Flow ruleset and {@code --force-language xml}, matching the two CI workflows.
+ * Each worker gets {@code --threads max(1, cores / shards)} so the workers
+ * together don't oversubscribe the machine. A shard whose worker fails is
+ * left out of the merged report and the driver exits with 1 after merging
+ * the others.
+ */
+public final class ShardedScan {
+
+    private static final String APEX_EXT = ".cls";
+    private static final String FLOW_EXT = ".flow";
+
+    // PMD exit codes: 0 = no violations, 4 = violations found,
+    // 5 = some files had processing errors (parse failure, rule exception) but the report was written
+    private static final int PMD_OK = 0;
+    private static final int PMD_VIOLATIONS = 4;
+    private static final int PMD_RECOVERED_ERRORS = 5;
+
+    // "path:line:<TAB>Rule:<TAB>message" as written by PMD's text renderer
+    private static final Pattern TEXT_LINE = Pattern.compile("^(.*?):(\\d+):\\t");
+
+    /** Orders report lines by file path, then numeric line, then the whole line. */
+    static final Comparator<String> REPORT_ORDER = (a, b) -> {
+        Matcher ma = TEXT_LINE.matcher(a);
+        Matcher mb = TEXT_LINE.matcher(b);
+        if (ma.find() && mb.find()) {
+            int c = ma.group(1).compareTo(mb.group(1));
+            if (c != 0) {
+                return c;
+            }
+            c = Long.compare(Long.parseLong(ma.group(2)), Long.parseLong(mb.group(2)));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.compareTo(b);
+    };
+
+    private int shardCount = Runtime.getRuntime().availableProcessors();
+    private String pmd = "pmd";
+    private Path outDir = Paths.get("build", "shards");
+    private Path report = Paths.get("pmd-report.txt");
+    private Path apexRuleset = Paths.get("apex-ruleset.xml");
+    private Path flowRuleset = Paths.get("flow-ruleset.xml");
+    private String keySalt = "";
+    private int workerThreads = 1;
+    private final List<Path> inputDirs = new ArrayList<>();
+
+    private ShardedScan() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ShardedScan scan = new ShardedScan();
+        scan.parseArgs(args);
+        System.exit(scan.run());
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--shards":
+                    shardCount = Integer.parseInt(value);
+                    break;
+                case "--pmd":
+                    pmd = value;
+                    break;
+                case "--out":
+                    outDir = Paths.get(value);
+                    break;
+                case "--report":
+                    report = Paths.get(value);
+                    break;
+                case "--apex-ruleset":
+                    apexRuleset = Paths.get(value);
+                    break;
+                case "--flow-ruleset":
+                    flowRuleset = Paths.get(value);
+                    break;
+                case "--key-salt":
+                    keySalt = value;
+                    break;
+                case "-d":
+                case "--dir":
+                    inputDirs.add(Paths.get(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("--shards must be at least 1");
+        }
+        if (inputDirs.isEmpty()) {
+            inputDirs.add(Paths.get("apex-classes"));
+            inputDirs.add(Paths.get("flows"));
+        }
+    }
+
+    private int run() throws Exception {
+        Files.createDirectories(outDir);
+        List<List<Path>> shards = partition(collectInputs(inputDirs), shardCount);
+        workerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, shards.size()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, shards.size()));
+        List<Future<Path>> results = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            final int index = i;
+            results.add(pool.submit(() -> runShard(index, shards.get(index))));
+        }
+        pool.shutdown();
+
+        List<Path> sortedReports = new ArrayList<>();
+        int failed = 0;
+        for (Future<Path> result : results) {
+            try {
+                sortedReports.add(result.get());
+            } catch (java.util.concurrent.ExecutionException e) {
+                System.err.println("Shard failed: " + e.getCause().getMessage());
+                failed++;
+            }
+        }
+
+        // merge whatever succeeded so one broken shard doesn't hide everybody else's findings
+        long merged = merge(sortedReports, report);
+        System.out.println("Merged " + sortedReports.size() + " of " + shards.size() + " shards into " + report
+                + " (" + merged + " findings)");
+        return failed == 0 ? 0 : 1;
+    }
+
+    /** All .cls/.flow files below the given directories, in path order. */
+    static List<Path> collectInputs(List<Path> dirs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (Path dir : dirs) {
+            try (Stream<Path> walk = Files.walk(dir)) {
+                walk.filter(Files::isRegularFile)
+                    .filter(p -> isApex(p) || isFlow(p))
+                    .map(Path::normalize)
+                    .forEach(files::add);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Longest-processing-time bin packing by file size. Deterministic for a given
+     * set of paths and sizes; empty shards are dropped.
+     */
+    static List<List<Path>> partition(List<Path> files, int shardCount) throws IOException {
+        List<long[]> sized = new ArrayList<>(); // {size, index into files}
+        for (int i = 0; i < files.size(); i++) {
+            sized.add(new long[] { Files.size(files.get(i)), i });
+        }
+        sized.sort((a, b) -> a[0] != b[0]
+                ? Long.compare(b[0], a[0])
+                : files.get((int) a[1]).compareTo(files.get((int) b[1])));
+
+        List<List<Path>> shards = new ArrayList<>();
+        // {load, shard index}
+        PriorityQueue<long[]> loads = new PriorityQueue<>((a, b) -> a[0] != b[0]
+                ? Long.compare(a[0], b[0])
+                : Long.compare(a[1], b[1]));
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+            loads.add(new long[] { 0L, i });
+        }
+        for (long[] file : sized) {
+            long[] lightest = loads.poll();
+            shards.get((int) lightest[1]).add(files.get((int) file[1]));
+            lightest[0] += file[0];
+            loads.add(lightest);
+        }
+
+        List<List<Path>> nonEmpty = new ArrayList<>();
+        for (List<Path> shard : shards) {
+            if (!shard.isEmpty()) {
+                shard.sort(Comparator.naturalOrder());
+                nonEmpty.add(shard);
+            }
+        }
+        return nonEmpty;
+    }
+
+    /**
+     * Runs the PMD worker process(es) for one shard and returns its sorted,
+     * deduplicated report. Reuses a previous result when the shard key matches.
+     */
+    private Path runShard(int index, List<Path> files) throws IOException, InterruptedException {
+        String name = "shard-" + index;
+        Path keyFile = outDir.resolve(name + ".key");
+        Path sorted = outDir.resolve(name + ".sorted.txt");
+
+        String key = shardKey(files);
+        if (Files.exists(sorted) && Files.exists(keyFile)
+                && key.equals(new String(Files.readAllBytes(keyFile), StandardCharsets.UTF_8).trim())) {
+            System.out.println(name + ": cached (" + files.size() + " files)");
+            return sorted;
+        }
+
+        List<Path> apex = new ArrayList<>();
+        List<Path> flows = new ArrayList<>();
+        for (Path f : files) {
+            (isApex(f) ? apex : flows).add(f);
+        }
+
+        List<Path> rawReports = new ArrayList<>();
+        if (!apex.isEmpty()) {
+            rawReports.add(runPmd(name + "-apex", apex, apexRuleset, false));
+        }
+        if (!flows.isEmpty()) {
+            rawReports.add(runPmd(name + "-flow", flows, flowRuleset, true));
+        }
+
+        TreeSet<String> lines = new TreeSet<>(REPORT_ORDER);
+        for (Path raw : rawReports) {
+            for (String line : Files.readAllLines(raw, StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+        Files.write(sorted, lines, StandardCharsets.UTF_8);
+        Files.write(keyFile, key.getBytes(StandardCharsets.UTF_8));
+        System.out.println(name + ": " + files.size() + " files, " + lines.size() + " findings");
+        return sorted;
+    }
+
+    private Path runPmd(String name, List<Path> files, Path ruleset, boolean forceXml)
+            throws IOException, InterruptedException {
+        Path fileList = outDir.resolve(name + ".files");
+        Path raw = outDir.resolve(name + ".txt");
+        List<String> paths = new ArrayList<>();
+        for (Path f : files) {
+            paths.add(f.toString());
+        }
+        Files.write(fileList, paths, StandardCharsets.UTF_8);
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(pmd);
+        cmd.add("check");
+        cmd.add("--file-list");
+        cmd.add(fileList.toString());
+        cmd.add("-R");
+        cmd.add(ruleset.toString());
+        cmd.add("-f");
+        cmd.add("text");
+        cmd.add("-r");
+        cmd.add(raw.toString());
+        cmd.add("--no-progress");
+        cmd.add("--threads");
+        cmd.add(Integer.toString(workerThreads));
+        if (forceXml) {
+            cmd.add("--force-language");
+            cmd.add("xml");
+        }
+
+        Process process = new ProcessBuilder(cmd)
+                .redirectErrorStream(true)
+                .redirectOutput(outDir.resolve(name + ".log").toFile())
+                .start();
+        int exit = process.waitFor();
+        if (exit == PMD_RECOVERED_ERRORS) {
+            System.err.println(name + ": PMD reported processing errors, see " + outDir.resolve(name + ".log"));
+        } else if (exit != PMD_OK && exit != PMD_VIOLATIONS) {
+            throw new IOException(name + ": PMD exited with " + exit + ", see " + outDir.resolve(name + ".log"));
+        }
+        if (!Files.exists(raw)) {
+            Files.createFile(raw);
+        }
+        return raw;
+    }
+
+    /**
+     * K-way streaming merge of individually sorted reports; duplicates across
+     * shards are written once. Only one line per shard is held in memory.
+     *
+     * @return number of lines written
+     */
+    static long merge(List<Path> sortedReports, Path target) throws IOException {
+        List<BufferedReader> readers = new ArrayList<>();
+        // {line, shard index} - the index keeps equal lines in a stable order
+        PriorityQueue<Object[]> heads = new PriorityQueue<>((a, b) -> {
+            int c = REPORT_ORDER.compare((String) a[0], (String) b[0]);
+            return c != 0 ? c : Integer.compare((Integer) a[1], (Integer) b[1]);
+        });
+        long written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < sortedReports.size(); i++) {
+                BufferedReader reader = Files.newBufferedReader(sortedReports.get(i), StandardCharsets.UTF_8);
+                readers.add(reader);
+                String first = reader.readLine();
+                if (first != null) {
+                    heads.add(new Object[] { first, i });
+                }
+            }
+
+            String last = null;
+            while (!heads.isEmpty()) {
+                Object[] head = heads.poll();
+                String line = (String) head[0];
+                if (!line.equals(last)) {
+                    out.write(line);
+                    out.newLine();
+                    written++;
+                    last = line;
+                }
+                String next = readers.get((Integer) head[1]).readLine();
+                if (next != null) {
+                    heads.add(new Object[] { next, head[1] });
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+        return written;
+    }
+
+    /** SHA-256 over the key salt, the rulesets and the shard's paths and contents. */
+    private String shardKey(List<Path> files) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(keySalt.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        update(digest, apexRuleset);
+        update(digest, flowRuleset);
+        for (Path f : files) {
+            digest.update(f.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            update(digest, f);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+    }
+
+    private static boolean isApex(Path p) {
+        return p.getFileName().toString().endsWith(APEX_EXT);
+    }
+
+    private static boolean isFlow(Path p) {
+        return p.getFileName().toString().endsWith(FLOW_EXT);
+    }
+}